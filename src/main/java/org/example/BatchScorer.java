@@ -0,0 +1,327 @@
+package org.example;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+public class BatchScorer {
+
+    // Passed between stages; a null vector means the image could not be decoded
+    private static class Item {
+        final long seq;
+        final Path file;
+        final float[] inputVec;
+        String error;
+        PredictionResult result;
+
+        Item(long seq, Path file, float[] inputVec, String error) {
+            this.seq = seq;
+            this.file = file;
+            this.inputVec = inputVec;
+            this.error = error;
+        }
+    }
+
+    private static final Item END = new Item(-1, null, null, null);
+
+    private final MLPClassifier mlpClassifier;
+    private final int decodeThreads;
+    private final int scoreThreads;
+    private final int batchSize;
+    // Upper bound on images between directory scan and result writer, including the reorder buffer
+    private final int inFlight;
+
+    public BatchScorer(MLPClassifier mlpClassifier, int threads, int batchSize) {
+        this.mlpClassifier = mlpClassifier;
+        this.decodeThreads = threads;
+        this.scoreThreads = Math.max(1, threads / 2);
+        this.batchSize = batchSize;
+        this.inFlight = Math.max(4 * threads * batchSize, 64);
+    }
+
+    public long score(Path dir, Path out) throws IOException, InterruptedException {
+        Set<String> suffixes = new HashSet<>();
+        for (String suffix : ImageIO.getReaderFileSuffixes()) {
+            suffixes.add(suffix.toLowerCase());
+        }
+
+        Semaphore permits = new Semaphore(inFlight);
+        BlockingQueue<Item> decoded = new ArrayBlockingQueue<>(inFlight + scoreThreads);
+        BlockingQueue<Item> scored = new ArrayBlockingQueue<>(inFlight + scoreThreads);
+        ExecutorService decoders = Executors.newFixedThreadPool(decodeThreads);
+
+        List<Thread> scorers = new ArrayList<>();
+        for (int t = 0; t < scoreThreads; t++) {
+            Thread scorer = new Thread(() -> scoreLoop(decoded, scored), "batch-scorer-" + t);
+            scorer.start();
+            scorers.add(scorer);
+        }
+
+        boolean jsonl = out != null && out.toString().toLowerCase().endsWith(".jsonl");
+        Writer writer = out == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(out, StandardCharsets.UTF_8);
+        long[] written = new long[1];
+        IOException[] writeError = new IOException[1];
+        Thread writerThread = new Thread(
+                () -> writeLoop(scored, permits, writer, jsonl, written, writeError), "batch-writer");
+        writerThread.start();
+
+        long start = System.nanoTime();
+        long seq = 0;
+        try (Stream<Path> files = Files.walk(dir)) {
+            Iterator<Path> it = files.filter(Files::isRegularFile)
+                    .filter(p -> suffixes.contains(extension(p)))
+                    .iterator();
+            while (it.hasNext()) {
+                Path file = it.next();
+                long itemSeq = seq++;
+                permits.acquire();
+                decoders.submit(() -> {
+                    // Every sequence number must reach the writer, or it waits for it forever
+                    Item item;
+                    try {
+                        item = decode(itemSeq, file);
+                    } catch (Throwable t) {
+                        item = new Item(itemSeq, file, null, t.toString());
+                    }
+                    putUninterruptibly(decoded, item);
+                });
+            }
+        } finally {
+            decoders.shutdown();
+            decoders.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            for (int t = 0; t < scoreThreads; t++) {
+                putUninterruptibly(decoded, END);
+            }
+            for (Thread scorer : scorers) {
+                scorer.join();
+            }
+            writerThread.join();
+            if (out == null) {
+                writer.flush();
+            } else {
+                writer.close();
+            }
+        }
+        if (writeError[0] != null) {
+            throw writeError[0];
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Scored %d images in %.2f s (%.1f images/sec)%n", written[0], seconds, written[0] / seconds);
+        return written[0];
+    }
+
+    private Item decode(long seq, Path file) {
+        try {
+            BufferedImage image = ImageIO.read(file.toFile());
+            if (image == null) {
+                return new Item(seq, file, null, "unsupported image format");
+            }
+            return new Item(seq, file, mlpClassifier.toInputVector(image), null);
+        } catch (IOException | RuntimeException e) {
+            return new Item(seq, file, null, e.toString());
+        }
+    }
+
+    private void scoreLoop(BlockingQueue<Item> decoded, BlockingQueue<Item> scored) {
+        List<Item> batch = new ArrayList<>(batchSize);
+        boolean done = false;
+        // END must always reach the writer, otherwise it and the directory scan wait forever
+        try {
+            while (!done) {
+                batch.clear();
+                Item first = takeUninterruptibly(decoded);
+                if (first == END) {
+                    break;
+                }
+                batch.add(first);
+                // Take whatever is already decoded, but never wait to fill the batch
+                while (batch.size() < batchSize) {
+                    Item next = decoded.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == END) {
+                        done = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                scoreBatch(batch);
+                for (Item item : batch) {
+                    putUninterruptibly(scored, item);
+                }
+            }
+        } finally {
+            putUninterruptibly(scored, END);
+        }
+    }
+
+    // A failing batch is reported as error rows instead of stopping the pipeline
+    private void scoreBatch(List<Item> batch) {
+        List<Item> valid = new ArrayList<>(batch.size());
+        for (Item item : batch) {
+            if (item.inputVec != null) {
+                valid.add(item);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        float[][] inputs = new float[valid.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = valid.get(i).inputVec;
+        }
+        try {
+            PredictionResult[] results = mlpClassifier.predictBatch(inputs);
+            for (int i = 0; i < results.length; i++) {
+                valid.get(i).result = results[i];
+            }
+        } catch (RuntimeException e) {
+            for (Item item : valid) {
+                item.result = null;
+                item.error = "scoring failed: " + e;
+            }
+        }
+    }
+
+    private void writeLoop(BlockingQueue<Item> scored, Semaphore permits, Writer writer, boolean jsonl,
+                           long[] written, IOException[] writeError) {
+        // Results arrive out of order; hold them until every earlier image has been written
+        Map<Long, Item> pending = new HashMap<>();
+        long nextSeq = 0;
+        int ended = 0;
+        try {
+            if (!jsonl) {
+                writer.write("file,symbol,confidence,error\n");
+            }
+        } catch (IOException e) {
+            writeError[0] = e;
+        }
+        while (ended < scoreThreads) {
+            Item item = takeUninterruptibly(scored);
+            if (item == END) {
+                ended++;
+                continue;
+            }
+            pending.put(item.seq, item);
+            for (Item ready = pending.remove(nextSeq); ready != null; ready = pending.remove(nextSeq)) {
+                if (writeError[0] == null) {
+                    try {
+                        writer.write(jsonl ? toJson(ready) : toCsv(ready));
+                    } catch (IOException e) {
+                        writeError[0] = e;
+                    }
+                }
+                written[0]++;
+                nextSeq++;
+                permits.release();
+            }
+        }
+    }
+
+    private String toCsv(Item item) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(csvField(item.file.toString())).append(",");
+        if (item.result != null) {
+            sb.append(mlpClassifier.indexToSymbol(item.result.predictedIndex)).append(",").append(item.result.confidence);
+        } else {
+            sb.append(",");
+        }
+        sb.append(",");
+        if (item.error != null) {
+            sb.append(csvField(item.error));
+        }
+        sb.append("\n");
+        return sb.toString();
+    }
+
+    private String toJson(Item item) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"file\":").append(jsonString(item.file.toString()));
+        if (item.result != null) {
+            sb.append(",\"symbol\":").append(jsonString(mlpClassifier.indexToSymbol(item.result.predictedIndex)));
+            sb.append(",\"confidence\":").append(item.result.confidence);
+        }
+        if (item.error != null) {
+            sb.append(",\"error\":").append(jsonString(item.error));
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private String csvField(String s) {
+        if (s.contains(",") || s.contains("\"") || s.contains("\n")) {
+            return "\"" + s.replace("\"", "\"\"") + "\"";
+        }
+        return s;
+    }
+
+    private String jsonString(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append("\"").toString();
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase();
+    }
+
+    private static void putUninterruptibly(BlockingQueue<Item> queue, Item item) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(item);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Item takeUninterruptibly(BlockingQueue<Item> queue) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return queue.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
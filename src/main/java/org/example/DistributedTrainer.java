@@ -0,0 +1,168 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class DistributedTrainer {
+
+    // A peer that sends nothing for this long is considered dead and the run is aborted
+    private static final int RING_TIMEOUT_MILLIS = 60_000;
+
+    private final int workers;
+    private final int basePort;
+    private final int epochs;
+    private final float lr;
+    private final int batchPerWorker;
+    // A worker stops computing its part of the mini-batch after this long, so one slow
+    // process contributes fewer examples instead of holding up the whole ring
+    private final long stepDeadlineMillis;
+
+    public DistributedTrainer(int workers, int basePort, int epochs, float lr, int batchPerWorker, long stepDeadlineMillis) {
+        this.workers = workers;
+        this.basePort = basePort;
+        this.epochs = epochs;
+        this.lr = lr;
+        this.batchPerWorker = batchPerWorker;
+        this.stepDeadlineMillis = stepDeadlineMillis;
+    }
+
+    // Starts the worker JVMs on this machine and waits for them; rank 0 saves the model
+    public boolean launch(String modelPath) {
+        String javaBin = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("java.class.path");
+        long seed = new Random().nextLong();
+
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int rank = 0; rank < workers; rank++) {
+                ProcessBuilder pb = new ProcessBuilder(javaBin, "-cp", classPath, Main.class.getName(),
+                        "--train-worker",
+                        String.valueOf(rank), String.valueOf(workers), String.valueOf(basePort),
+                        String.valueOf(epochs), String.valueOf(lr), String.valueOf(batchPerWorker),
+                        String.valueOf(stepDeadlineMillis), String.valueOf(seed), modelPath);
+                pb.inheritIO();
+                processes.add(pb.start());
+            }
+
+            // The ring cannot finish without every worker, so the first failure stops the rest
+            boolean success = true;
+            boolean[] reported = new boolean[processes.size()];
+            while (processes.stream().anyMatch(Process::isAlive)) {
+                for (int rank = 0; rank < processes.size(); rank++) {
+                    Process process = processes.get(rank);
+                    if (!reported[rank] && !process.isAlive() && process.exitValue() != 0) {
+                        reported[rank] = true;
+                        System.err.println("Worker " + rank + " exited with code " + process.exitValue());
+                        success = false;
+                        processes.forEach(Process::destroy);
+                    }
+                }
+                Thread.sleep(100);
+            }
+            for (int rank = 0; rank < processes.size(); rank++) {
+                int exitCode = processes.get(rank).waitFor();
+                if (!reported[rank] && exitCode != 0) {
+                    System.err.println("Worker " + rank + " exited with code " + exitCode);
+                    success = false;
+                }
+            }
+            if (!success) {
+                System.err.println("Distributed training aborted, no model was saved");
+            }
+            return success;
+        } catch (IOException e) {
+            e.printStackTrace();
+            processes.forEach(Process::destroy);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            processes.forEach(Process::destroy);
+            return false;
+        }
+    }
+
+    // Entry point of one worker process, args as passed by launch()
+    public static void runWorker(String[] args) throws IOException {
+        int rank = Integer.parseInt(args[1]);
+        int size = Integer.parseInt(args[2]);
+        int basePort = Integer.parseInt(args[3]);
+        int epochs = Integer.parseInt(args[4]);
+        float lr = Float.parseFloat(args[5]);
+        int batchPerWorker = Integer.parseInt(args[6]);
+        long stepDeadlineMillis = Long.parseLong(args[7]);
+        long seed = Long.parseLong(args[8]);
+        String modelPath = args[9];
+
+        MLPClassifier mlpClassifier = new MLPClassifier(false, System.out);
+        MLPDataset mlpDataset = mlpClassifier.parseMLPDatasetFromCSV();
+        if (mlpDataset == null || mlpDataset.inputList.isEmpty()) {
+            throw new IOException("Worker " + rank + " failed to parse dataset " + mlpClassifier.pathToDataset);
+        }
+        float[][] inputs = mlpDataset.inputList.toArray(new float[0][]);
+        float[][] targets = mlpDataset.targetList.toArray(new float[0][]);
+
+        // Shard i of the dataset goes to worker i % size
+        List<Integer> shard = new ArrayList<>();
+        for (int i = rank; i < inputs.length; i += size) {
+            shard.add(i);
+        }
+        // Every worker must run the same number of steps, otherwise the ring deadlocks
+        int largestShard = (inputs.length + size - 1) / size;
+        int stepsPerEpoch = Math.max(1, (largestShard + batchPerWorker - 1) / batchPerWorker);
+
+        // Same seed on every worker gives identical initial weights
+        MLP mlp = new MLP(inputs[0].length, 256, targets[0].length, seed);
+        int gradientSize = mlp.getGradientSize();
+        // Two extra slots carry the summed loss and example count through the all-reduce
+        float[] buffer = new float[gradientSize + 2];
+        Random shuffleRnd = new Random(seed + rank);
+
+        try (RingAllReduce ring = new RingAllReduce(rank, size, basePort, RING_TIMEOUT_MILLIS)) {
+            int cursor = 0;
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                float epochLoss = 0f;
+                float epochCount = 0f;
+                for (int step = 0; step < stepsPerEpoch; step++) {
+                    Arrays.fill(buffer, 0f);
+                    long deadline = System.nanoTime() + stepDeadlineMillis * 1_000_000L;
+                    float loss = 0f;
+                    int count = 0;
+                    while (count < batchPerWorker && !shard.isEmpty()
+                            && (count == 0 || System.nanoTime() < deadline)) {
+                        if (cursor == 0) {
+                            Collections.shuffle(shard, shuffleRnd);
+                        }
+                        int index = shard.get(cursor);
+                        cursor = (cursor + 1) % shard.size();
+                        loss += mlp.accumulateGradient(inputs[index], targets[index], buffer);
+                        count++;
+                    }
+                    buffer[gradientSize] = loss;
+                    buffer[gradientSize + 1] = count;
+
+                    ring.allReduce(buffer);
+
+                    float totalCount = buffer[gradientSize + 1];
+                    if (totalCount > 0) {
+                        mlp.applyGradient(buffer, lr / totalCount);
+                    }
+                    epochLoss += buffer[gradientSize];
+                    epochCount += totalCount;
+                }
+                if (rank == 0) {
+                    System.out.println("Epoch " + epoch + " - Loss: " + epochLoss / epochCount);
+                }
+            }
+        }
+
+        // A failed save must fail the worker, otherwise the launcher would reload a stale model
+        if (rank == 0 && !mlpClassifier.saveModel(mlp, modelPath)) {
+            throw new IOException("Worker 0 failed to save the model to " + modelPath);
+        }
+    }
+}
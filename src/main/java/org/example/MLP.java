@@ -23,9 +23,17 @@ public class MLP implements Serializable {
     private float[][] w2;
     private float[] b2;
 
+    // Input index remapping of a pruned model: compact input i reads full input inputIndices[i]
+    private int[] inputIndices;
+
     private transient Random rnd = new Random();
 
     public MLP(int inputSize, int hiddenSize, int outputSize) {
+        this(inputSize, hiddenSize, outputSize, new Random().nextLong());
+    }
+
+    public MLP(int inputSize, int hiddenSize, int outputSize, long seed) {
+        rnd = new Random(seed);
         this.inputSize = inputSize;
         this.hiddenSize = hiddenSize;
         this.outputSize = outputSize;
@@ -43,6 +51,22 @@ public class MLP implements Serializable {
         initWeights(w2);
     }
 
+    MLP(float[][] w1, float[] b1, float[][] w2, float[] b2, int[] inputIndices) {
+        this.inputSize = w1.length;
+        this.hiddenSize = b1.length;
+        this.outputSize = b2.length;
+
+        outputRaw = new float[outputSize];
+        dropoutMask = new float[hiddenSize];
+        hidden = new float[hiddenSize];
+
+        this.w1 = w1;
+        this.b1 = b1;
+        this.w2 = w2;
+        this.b2 = b2;
+        this.inputIndices = inputIndices;
+    }
+
     private void initWeights(float[][] matrix) {
         for (int i = 0; i < matrix.length; i++) {
             for (int j = 0; j < matrix[0].length; j++) {
@@ -56,7 +80,7 @@ public class MLP implements Serializable {
         for (int epoch = 0; epoch < epochs; epoch++) {
             float sumLoss = 0f;
             for (int i = 0; i < n; i++) {
-                sumLoss += trainOnExample(inputs[i], targets[i], lr);
+                sumLoss += trainOnExample(adaptInput(inputs[i]), targets[i], lr);
             }
             float avgLoss = sumLoss / n;
             System.out.println("Epoch " + epoch + " - Loss: " + avgLoss);
@@ -76,7 +100,25 @@ public class MLP implements Serializable {
         return output;
     }
 
-    private float findMaxLogit(float[] hidden) {
+    // Hidden layer pre-activations and ReLU outputs; zero input cells are skipped
+    private void computeHidden(float[] input, float[] hiddenRaw, float[] hidden) {
+        System.arraycopy(b1, 0, hiddenRaw, 0, hiddenSize);
+        for (int i = 0; i < inputSize; i++) {
+            float x = input[i];
+            if (x == 0) {
+                continue;
+            }
+            float[] row = w1[i];
+            for (int j = 0; j < hiddenSize; j++) {
+                hiddenRaw[j] += x * row[j];
+            }
+        }
+        for (int j = 0; j < hiddenSize; j++) {
+            hidden[j] = relu(hiddenRaw[j]);
+        }
+    }
+
+    private float findMaxLogit(float[] hidden, float[] outputRaw) {
         float maxLogit = Float.NEGATIVE_INFINITY;
         for (int k = 0; k < outputRaw.length; k++) {
             float sum = b2[k];
@@ -148,16 +190,9 @@ public class MLP implements Serializable {
     private float trainOnExample(float[] input, float[] target, float lr) {
         // ---------- Forward -----------
         float[] hiddenRaw = new float[hiddenSize];
-        for (int j = 0; j < hiddenSize; j++) {
-            float sum = b1[j];
-            for (int i = 0; i < inputSize; i++) {
-                sum += input[i] * w1[i][j];
-            }
-            hiddenRaw[j] = sum;
-            hidden[j] = relu(sum);
-        }
+        computeHidden(input, hiddenRaw, hidden);
 
-        float maxLogit = findMaxLogit(hidden);
+        float maxLogit = findMaxLogit(hidden, outputRaw);
         float[] output = calculateSoftmax(outputRaw, maxLogit);
         float loss = calculateLoss(output, target);
 
@@ -168,50 +203,191 @@ public class MLP implements Serializable {
         return loss;
     }
 
-    public PredictionResult predict(float[] input) {
-        // Forward
+    public int getGradientSize() {
+        return getParameterCount();
+    }
+
+    // Adds the gradient of one example to grad (layout: w1, b1, w2, b2) without touching the weights
+    public float accumulateGradient(float[] input, float[] target, float[] grad) {
+        input = adaptInput(input);
+
+        float[] hiddenRaw = new float[hiddenSize];
         float[] hidden = new float[hiddenSize];
+        computeHidden(input, hiddenRaw, hidden);
+
+        float[] outputRaw = new float[outputSize];
+        float maxLogit = findMaxLogit(hidden, outputRaw);
+        float[] output = calculateSoftmax(outputRaw, maxLogit);
+        float[] dOutput = calculateErrors(output, target);
+
+        int b1Offset = inputSize * hiddenSize;
+        int w2Offset = b1Offset + hiddenSize;
+        int b2Offset = w2Offset + hiddenSize * outputSize;
+
+        float[] dHidden = new float[hiddenSize];
         for (int j = 0; j < hiddenSize; j++) {
-            float sum = b1[j];
-            for (int i = 0; i < inputSize; i++) {
-                sum += input[i] * w1[i][j];
+            for (int k = 0; k < outputSize; k++) {
+                grad[w2Offset + j * outputSize + k] += dOutput[k] * hidden[j];
+                dHidden[j] += dOutput[k] * w2[j][k];
+            }
+            if (hiddenRaw[j] <= 0) {
+                dHidden[j] = 0;
             }
-            hidden[j] = relu(sum);
         }
-
-        float[] outputRaw = new float[outputSize];
-        float maxLogit = Float.NEGATIVE_INFINITY;
         for (int k = 0; k < outputSize; k++) {
-            float sum = b2[k];
-            for (int j = 0; j < hiddenSize; j++) {
-                sum += hidden[j] * w2[j][k];
+            grad[b2Offset + k] += dOutput[k];
+        }
+
+        for (int i = 0; i < inputSize; i++) {
+            float x = input[i];
+            if (x == 0) {
+                continue;
             }
-            outputRaw[k] = sum;
-            if (sum > maxLogit) {
-                maxLogit = sum;
+            int rowOffset = i * hiddenSize;
+            for (int j = 0; j < hiddenSize; j++) {
+                grad[rowOffset + j] += x * dHidden[j];
             }
         }
+        for (int j = 0; j < hiddenSize; j++) {
+            grad[b1Offset + j] += dHidden[j];
+        }
 
-        float[] output = new float[outputSize];
-        float sumExp = 0f;
-        for (int k = 0; k < outputSize; k++) {
-            output[k] = (float) Math.exp(outputRaw[k] - maxLogit);
-            sumExp += output[k];
+        return calculateLoss(output, target);
+    }
+
+    public void applyGradient(float[] grad, float lr) {
+        int index = 0;
+        for (int i = 0; i < inputSize; i++) {
+            for (int j = 0; j < hiddenSize; j++) {
+                w1[i][j] -= lr * grad[index++];
+            }
+        }
+        for (int j = 0; j < hiddenSize; j++) {
+            b1[j] -= lr * grad[index++];
+        }
+        for (int j = 0; j < hiddenSize; j++) {
+            for (int k = 0; k < outputSize; k++) {
+                w2[j][k] -= lr * grad[index++];
+            }
         }
         for (int k = 0; k < outputSize; k++) {
-            output[k] /= sumExp;
+            b2[k] -= lr * grad[index++];
         }
+    }
 
-        // Аргмакс
+    public PredictionResult predict(float[] input) {
+        float[] output = predictProbabilities(input);
+        int bestIndex = argmax(output);
+        return new PredictionResult(bestIndex, output[bestIndex]);
+    }
+
+    public float[] predictProbabilities(float[] input) {
+        input = adaptInput(input);
+        // Forward
+        float[] hiddenRaw = new float[hiddenSize];
+        float[] hidden = new float[hiddenSize];
+        computeHidden(input, hiddenRaw, hidden);
+
+        float[] outputRaw = new float[outputSize];
+        float maxLogit = findMaxLogit(hidden, outputRaw);
+        return calculateSoftmax(outputRaw, maxLogit);
+    }
+
+    // Аргмакс
+    private int argmax(float[] values) {
         int bestIndex = 0;
-        float bestVal = output[0];
-        for (int k = 1; k < outputSize; k++) {
-            if (output[k] > bestVal) {
-                bestVal = output[k];
+        for (int k = 1; k < values.length; k++) {
+            if (values[k] > values[bestIndex]) {
                 bestIndex = k;
             }
         }
-        return new PredictionResult(bestIndex, bestVal);
+        return bestIndex;
+    }
+
+    // Same as predict for every input, but the hidden layer is accumulated for the whole batch so
+    // each w1 row is read once per batch instead of once per input; the output layer is shared
+    public PredictionResult[] predictBatch(float[][] inputs) {
+        int batch = inputs.length;
+        float[][] hidden = new float[batch][];
+        float[][] adapted = new float[batch][];
+        for (int b = 0; b < batch; b++) {
+            hidden[b] = b1.clone();
+            adapted[b] = adaptInput(inputs[b]);
+        }
+        for (int i = 0; i < inputSize; i++) {
+            float[] row = w1[i];
+            for (int b = 0; b < batch; b++) {
+                float x = adapted[b][i];
+                if (x == 0) {
+                    continue;
+                }
+                float[] h = hidden[b];
+                for (int j = 0; j < hiddenSize; j++) {
+                    h[j] += x * row[j];
+                }
+            }
+        }
+
+        PredictionResult[] results = new PredictionResult[batch];
+        for (int b = 0; b < batch; b++) {
+            float[] h = hidden[b];
+            for (int j = 0; j < hiddenSize; j++) {
+                h[j] = relu(h[j]);
+            }
+            float[] outputRaw = new float[outputSize];
+            float maxLogit = findMaxLogit(h, outputRaw);
+            float[] output = calculateSoftmax(outputRaw, maxLogit);
+            int bestIndex = argmax(output);
+            results[b] = new PredictionResult(bestIndex, output[bestIndex]);
+        }
+        return results;
+    }
+
+    private float[] adaptInput(float[] input) {
+        if (inputIndices == null) {
+            return input;
+        }
+        float[] compact = new float[inputIndices.length];
+        for (int i = 0; i < inputIndices.length; i++) {
+            compact[i] = input[inputIndices[i]];
+        }
+        return compact;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    public int getOutputSize() {
+        return outputSize;
+    }
+
+    public int getParameterCount() {
+        return inputSize * hiddenSize + hiddenSize + hiddenSize * outputSize + outputSize;
+    }
+
+    float[][] getW1() {
+        return w1;
+    }
+
+    float[] getB1() {
+        return b1;
+    }
+
+    float[][] getW2() {
+        return w2;
+    }
+
+    float[] getB2() {
+        return b2;
+    }
+
+    int[] getInputIndices() {
+        return inputIndices;
     }
 
     private float relu(float x) {
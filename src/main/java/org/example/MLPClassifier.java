@@ -16,18 +16,128 @@ public class MLPClassifier {
     private final int GRID = 56;
     private int[][] binaryPixels = new int[GRID][GRID];
     public final String pathToMLPModel = "mlpModel.bin";
+    public final String pathToPrunedMLPModel = "mlpModelPruned.bin";
+    public final String pathToEnsembleModel = "mlpModelEnsemble_%d.bin";
     public final String pathToDataset = "dataset.csv";
 
+    // Workers listen on ports basePort .. basePort + workers - 1
+    public static final int DISTRIBUTED_BASE_PORT = 47000;
+    // Higher than the single-JVM 0.001f because each update averages the gradient over a mini-batch
+    // instead of applying one step per example
+    public static final float DISTRIBUTED_LR = 0.05f;
+    public static final long DISTRIBUTED_STEP_DEADLINE_MILLIS = 200;
+
     private MLP mlpModel;
+    private MLPEnsemble ensemble;
+    private boolean useEnsemble;
+    // Status messages; the batch scoring CLI sends them to stderr so stdout carries only results
+    private final PrintStream log;
 
     public MLPClassifier() {
-        mlpModel = loadModel(pathToMLPModel);
+        this(true, System.out);
+    }
+
+    // Without loadModels only the dataset helpers are usable, e.g. in a training worker process
+    MLPClassifier(boolean loadModels, PrintStream log) {
+        this.log = log;
+        if (!loadModels) {
+            return;
+        }
+        // A pruned model is derived from the trained one, so it is preferred when present
+        if (Files.exists(Paths.get(pathToPrunedMLPModel))) {
+            mlpModel = loadModel(pathToPrunedMLPModel);
+        }
+        if (mlpModel == null) {
+            mlpModel = loadModel(pathToMLPModel);
+        }
     }
 
     public PredictionResult predict(float[] inputVec) {
+        if (useEnsemble) {
+            return ensemble.predict(inputVec);
+        }
         return mlpModel.predict(inputVec);
     }
 
+    public PredictionResult[] predictBatch(float[][] inputVecs) {
+        if (useEnsemble) {
+            PredictionResult[] results = new PredictionResult[inputVecs.length];
+            for (int i = 0; i < inputVecs.length; i++) {
+                results[i] = ensemble.predict(inputVecs[i]);
+            }
+            return results;
+        }
+        return mlpModel.predictBatch(inputVecs);
+    }
+
+    public MLPEnsemble getEnsemble() {
+        return ensemble;
+    }
+
+    public boolean hasModel() {
+        return useEnsemble || mlpModel != null;
+    }
+
+    public boolean isUsingEnsemble() {
+        return useEnsemble;
+    }
+
+    // Switches predictions between the single model and the ensemble, loading the ensemble on first use.
+    // Returns false if the ensemble was requested but no member files exist
+    public boolean setUseEnsemble(boolean use) {
+        if (use && ensemble == null) {
+            ensemble = loadEnsemble();
+        }
+        useEnsemble = use && ensemble != null;
+        return useEnsemble == use;
+    }
+
+    public MLPEnsemble loadEnsemble() {
+        List<MLP> members = new ArrayList<>();
+        for (int m = 0; Files.exists(Paths.get(String.format(pathToEnsembleModel, m))); m++) {
+            MLP mlp = loadModel(String.format(pathToEnsembleModel, m));
+            if (mlp == null) {
+                return null;
+            }
+            members.add(mlp);
+        }
+        return members.isEmpty() ? null : new MLPEnsemble(members);
+    }
+
+    public MLPEnsemble trainAndSaveEnsemble(int memberCount) {
+        MLPDataset mlpDataset = parseMLPDatasetFromCSV();
+        if (mlpDataset == null || mlpDataset.inputList.isEmpty()) {
+            System.err.println("Failed to parse MLP Dataset from file " + pathToDataset);
+            return null;
+        }
+        float[][] inputs = mlpDataset.inputList.toArray(new float[0][]);
+        float[][] targets = mlpDataset.targetList.toArray(new float[0][]);
+
+        List<MLP> members = new ArrayList<>();
+        for (int m = 0; m < memberCount; m++) {
+            log.println("Training ensemble member " + m);
+            MLP mlp = new MLP(GRID * GRID, 256, 3, m);
+            mlp.train(inputs, targets, 1000, 0.001f);
+            saveModel(mlp, String.format(pathToEnsembleModel, m));
+            members.add(mlp);
+        }
+        // Members left over from a larger ensemble would be picked up by loadEnsemble
+        try {
+            for (int m = memberCount; Files.exists(Paths.get(String.format(pathToEnsembleModel, m))); m++) {
+                Files.delete(Paths.get(String.format(pathToEnsembleModel, m)));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        if (ensemble != null) {
+            ensemble.close();
+        }
+        ensemble = new MLPEnsemble(members);
+        useEnsemble = true;
+        return ensemble;
+    }
+
     public MLPDataset loadTestSample() {
         List<float[]> inputList = new ArrayList<>();
         List<float[]> targetList = new ArrayList<>();
@@ -69,6 +179,8 @@ public class MLPClassifier {
         if (mlp != null) {
             mlpModel = mlp;
             saveModel(mlpModel, pathToMLPModel);
+            discardPrunedModel();
+            useEnsemble = false;
             return mlpModel;
         }
         else {
@@ -76,21 +188,101 @@ public class MLPClassifier {
         }
     }
 
+    public MLP trainAndSaveMLPDistributed(int workers) {
+        return trainAndSaveMLPDistributed(workers, DISTRIBUTED_BASE_PORT, DISTRIBUTED_LR, DISTRIBUTED_STEP_DEADLINE_MILLIS);
+    }
+
+    public MLP trainAndSaveMLPDistributed(int workers, int basePort, float lr, long stepDeadlineMillis) {
+        DistributedTrainer trainer = new DistributedTrainer(workers, basePort, 1000, lr, 32, stepDeadlineMillis);
+        if (!trainer.launch(pathToMLPModel)) {
+            System.err.println("Distributed training failed");
+            return null;
+        }
+        MLP mlp = loadModel(pathToMLPModel);
+        if (mlp != null) {
+            mlpModel = mlp;
+            discardPrunedModel();
+            useEnsemble = false;
+        }
+        return mlp;
+    }
+
+    // A freshly trained model makes the previously pruned one stale
+    private void discardPrunedModel() {
+        try {
+            Files.deleteIfExists(Paths.get(pathToPrunedMLPModel));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public MLP pruneAndSaveMLP() {
+        if (mlpModel == null) {
+            System.err.println("No trained MLP model to prune");
+            return null;
+        }
+
+        MLPDataset mlpDataset = parseMLPDatasetFromCSV();
+        if (mlpDataset == null || mlpDataset.inputList.isEmpty()) {
+            System.err.println("Failed to parse MLP Dataset from file " + pathToDataset);
+            return null;
+        }
+
+        MLP pruned = new MLPPruner().prune(mlpModel, mlpDataset, loadTestSample());
+        mlpModel = pruned;
+        saveModel(mlpModel, pathToPrunedMLPModel);
+        useEnsemble = false;
+        return mlpModel;
+    }
+
     public float[] getInputVector(BufferedImage canvas) {
         binaryPixels = readPixelsFromCanvas(canvas);
         return convertToFloatVector(binaryPixels);
     }
 
-    public void saveModel(MLP mlp, String filename) {
+    public boolean saveModel(MLP mlp, String filename) {
         try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
             oos.writeObject(mlp);
-            System.out.println("Model successfully saved!");
+            log.println("Model successfully saved!");
+            return true;
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
         }
     }
 
     public int[][] readPixelsFromCanvas(BufferedImage canvas) {
+        binaryPixels = rasterize(canvas);
+        return binaryPixels;
+    }
+
+    // Same as getInputVector but without touching shared state, safe to call from several threads.
+    // Images of any size are letterboxed onto a white canvas of the drawing panel's size first
+    public float[] toInputVector(BufferedImage image) {
+        return convertToFloatVector(rasterize(scaleToCanvas(image)));
+    }
+
+    private BufferedImage scaleToCanvas(BufferedImage image) {
+        if (image.getWidth() == WIDTH && image.getHeight() == HEIGHT
+                && image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        // Letterbox: keep the glyph's aspect ratio and center it on the canvas
+        double scale = Math.min(WIDTH / (double) image.getWidth(), HEIGHT / (double) image.getHeight());
+        int w = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int h = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage canvas = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = canvas.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, (WIDTH - w) / 2, (HEIGHT - h) / 2, w, h, null);
+        g.dispose();
+        return canvas;
+    }
+
+    private int[][] rasterize(BufferedImage canvas) {
+        int[][] pixels = new int[GRID][GRID];
         int cellSize = WIDTH / GRID;
         for (int y = 0; y < GRID; y++) {
             for (int x = 0; x < GRID; x++) {
@@ -106,16 +298,16 @@ public class MLPClassifier {
                     }
                 }
                 double ratio = blackCount / (double)(cellSize * cellSize);
-                binaryPixels[y][x] = (ratio > 0.2) ? 1 : 0;
+                pixels[y][x] = (ratio > 0.2) ? 1 : 0;
             }
         }
-        return binaryPixels;
+        return pixels;
     }
 
     public MLP loadModel(String filename) {
         try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
             MLP mlp = (MLP) ois.readObject();
-            System.out.println("MLP Model successfully downloaded");
+            log.println("MLP Model successfully downloaded");
             return mlp;
         } catch (IOException | ClassNotFoundException e) {
             e.printStackTrace();
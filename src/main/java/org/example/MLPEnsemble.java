@@ -0,0 +1,163 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class MLPEnsemble implements AutoCloseable {
+
+    public enum Combine {
+        AVERAGE, // mean of the members' softmax outputs
+        VOTE     // majority of argmax votes, confidence is the share of agreeing members
+    }
+
+    private final List<MLP> members;
+    private final Combine combine;
+    // The first earlyExitMembers are evaluated first; if they all agree with at least
+    // earlyExitConfidence, the remaining members are skipped
+    private final int earlyExitMembers;
+    private final float earlyExitConfidence;
+
+    private final ExecutorService executor;
+
+    public MLPEnsemble(List<MLP> members, Combine combine, int earlyExitMembers, float earlyExitConfidence) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("Ensemble needs at least one member");
+        }
+        this.members = new ArrayList<>(members);
+        this.combine = combine;
+        this.earlyExitMembers = earlyExitMembers;
+        this.earlyExitConfidence = earlyExitConfidence;
+
+        int threads = Math.min(members.size(), Runtime.getRuntime().availableProcessors());
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "ensemble-member");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public MLPEnsemble(List<MLP> members) {
+        this(members, Combine.AVERAGE, 2, 0.95f);
+    }
+
+    // Stops the member threads; the ensemble must not be used afterwards
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    public PredictionResult predict(float[] input) {
+        int n = members.size();
+        int first = earlyExitMembers > 0 && earlyExitMembers < n ? earlyExitMembers : n;
+
+        List<float[]> outputs = evaluate(input, 0, first);
+        if (first < n) {
+            if (agree(outputs)) {
+                return combine(outputs);
+            }
+            outputs.addAll(evaluate(input, first, n));
+        }
+        return combine(outputs);
+    }
+
+    private List<float[]> evaluate(float[] input, int from, int to) {
+        if (from >= to) {
+            return new ArrayList<>();
+        }
+        List<Future<float[]>> futures = new ArrayList<>();
+        // The caller evaluates the first member itself instead of idling on the futures
+        for (int m = from + 1; m < to; m++) {
+            MLP member = members.get(m);
+            futures.add(executor.submit(() -> member.predictProbabilities(input)));
+        }
+
+        List<float[]> outputs = new ArrayList<>();
+        outputs.add(members.get(from).predictProbabilities(input));
+        try {
+            for (Future<float[]> future : futures) {
+                outputs.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating ensemble", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ensemble member failed", e.getCause());
+        }
+        return outputs;
+    }
+
+    private boolean agree(List<float[]> outputs) {
+        int predicted = argmax(outputs.get(0));
+        for (float[] output : outputs) {
+            int index = argmax(output);
+            if (index != predicted || output[index] < earlyExitConfidence) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private PredictionResult combine(List<float[]> outputs) {
+        int outputSize = outputs.get(0).length;
+        float[] combined = new float[outputSize];
+        for (float[] output : outputs) {
+            if (combine == Combine.VOTE) {
+                combined[argmax(output)] += 1f;
+            } else {
+                for (int k = 0; k < outputSize; k++) {
+                    combined[k] += output[k];
+                }
+            }
+        }
+        int best = argmax(combined);
+        return new PredictionResult(best, combined[best] / outputs.size());
+    }
+
+    private int argmax(float[] values) {
+        int best = 0;
+        for (int k = 1; k < values.length; k++) {
+            if (values[k] > values[best]) {
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    // Prints the per-input latency of the ensemble next to its first member alone
+    public void reportOverhead(float[][] inputs, int repeats) {
+        MLP single = members.get(0);
+        for (int r = 0; r < Math.max(1, repeats / 10); r++) {
+            for (float[] input : inputs) {
+                single.predict(input);
+                predict(input);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int r = 0; r < repeats; r++) {
+            for (float[] input : inputs) {
+                single.predict(input);
+            }
+        }
+        double singleMicros = (System.nanoTime() - start) / 1000.0 / ((long) repeats * inputs.length);
+
+        start = System.nanoTime();
+        for (int r = 0; r < repeats; r++) {
+            for (float[] input : inputs) {
+                predict(input);
+            }
+        }
+        double ensembleMicros = (System.nanoTime() - start) / 1000.0 / ((long) repeats * inputs.length);
+
+        System.out.printf("Single model: %.1f us, ensemble of %d: %.1f us (overhead %.2fx)%n",
+                singleMicros, members.size(), ensembleMicros, ensembleMicros / singleMicros);
+    }
+}
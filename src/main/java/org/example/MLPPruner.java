@@ -0,0 +1,188 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MLPPruner {
+
+    // Hidden unit is kept if its contribution is at least this fraction of the strongest unit
+    private final float hiddenThreshold;
+    private final int latencyRepeats;
+
+    public MLPPruner() {
+        this(0.01f, 10);
+    }
+
+    public MLPPruner(float hiddenThreshold, int latencyRepeats) {
+        this.hiddenThreshold = hiddenThreshold;
+        this.latencyRepeats = latencyRepeats;
+    }
+
+    public MLP prune(MLP mlp, MLPDataset dataset, MLPDataset holdout) {
+        float[][] inputs = dataset.inputList.toArray(new float[0][]);
+        int[] inputMap = mlp.getInputIndices();
+
+        // ---------- Input cells that are active somewhere in the dataset -----------
+        List<Integer> activeRows = new ArrayList<>();
+        for (int i = 0; i < mlp.getInputSize(); i++) {
+            int fullIndex = inputMap == null ? i : inputMap[i];
+            for (float[] input : inputs) {
+                if (input[fullIndex] != 0) {
+                    activeRows.add(i);
+                    break;
+                }
+            }
+        }
+
+        // ---------- Hidden units with a non-negligible contribution -----------
+        float[] meanActivation = meanHiddenActivation(mlp, inputs, inputMap);
+        float[][] w2 = mlp.getW2();
+        float[] contribution = new float[meanActivation.length];
+        for (int j = 0; j < contribution.length; j++) {
+            float outWeight = 0f;
+            for (float w : w2[j]) {
+                outWeight += Math.abs(w);
+            }
+            // Mean ReLU activation of the unit times the magnitude of its outgoing weights
+            contribution[j] = meanActivation[j] * outWeight;
+        }
+        float maxContribution = 0f;
+        for (float c : contribution) {
+            maxContribution = Math.max(maxContribution, c);
+        }
+        List<Integer> keptHidden = new ArrayList<>();
+        for (int j = 0; j < contribution.length; j++) {
+            if (contribution[j] > 0 && contribution[j] >= hiddenThreshold * maxContribution) {
+                keptHidden.add(j);
+            }
+        }
+
+        MLP pruned = compact(mlp, activeRows, keptHidden, meanActivation);
+        report(mlp, pruned, holdout);
+        return pruned;
+    }
+
+    private float[] meanHiddenActivation(MLP mlp, float[][] inputs, int[] inputMap) {
+        float[][] w1 = mlp.getW1();
+        float[] b1 = mlp.getB1();
+        int hiddenSize = mlp.getHiddenSize();
+
+        float[] meanActivation = new float[hiddenSize];
+        float[] sum = new float[hiddenSize];
+        for (float[] input : inputs) {
+            System.arraycopy(b1, 0, sum, 0, hiddenSize);
+            for (int i = 0; i < w1.length; i++) {
+                float x = input[inputMap == null ? i : inputMap[i]];
+                if (x == 0) {
+                    continue;
+                }
+                float[] row = w1[i];
+                for (int j = 0; j < hiddenSize; j++) {
+                    sum[j] += x * row[j];
+                }
+            }
+            for (int j = 0; j < hiddenSize; j++) {
+                if (sum[j] > 0) {
+                    meanActivation[j] += sum[j] / inputs.length;
+                }
+            }
+        }
+        return meanActivation;
+    }
+
+    private MLP compact(MLP mlp, List<Integer> activeRows, List<Integer> keptHidden, float[] meanActivation) {
+        float[][] w1 = mlp.getW1();
+        float[] b1 = mlp.getB1();
+        float[][] w2 = mlp.getW2();
+        int[] inputMap = mlp.getInputIndices();
+
+        float[][] newW1 = new float[activeRows.size()][keptHidden.size()];
+        int[] newInputMap = new int[activeRows.size()];
+        for (int r = 0; r < activeRows.size(); r++) {
+            int i = activeRows.get(r);
+            newInputMap[r] = inputMap == null ? i : inputMap[i];
+            for (int c = 0; c < keptHidden.size(); c++) {
+                newW1[r][c] = w1[i][keptHidden.get(c)];
+            }
+        }
+
+        float[] newB1 = new float[keptHidden.size()];
+        float[][] newW2 = new float[keptHidden.size()][];
+        for (int c = 0; c < keptHidden.size(); c++) {
+            int j = keptHidden.get(c);
+            newB1[c] = b1[j];
+            newW2[c] = w2[j].clone();
+        }
+
+        // A dropped unit is replaced by its mean output, folded into the output bias
+        float[] newB2 = mlp.getB2().clone();
+        boolean[] kept = new boolean[b1.length];
+        for (int j : keptHidden) {
+            kept[j] = true;
+        }
+        for (int j = 0; j < b1.length; j++) {
+            if (kept[j]) {
+                continue;
+            }
+            for (int k = 0; k < newB2.length; k++) {
+                newB2[k] += meanActivation[j] * w2[j][k];
+            }
+        }
+
+        return new MLP(newW1, newB1, newW2, newB2, newInputMap);
+    }
+
+    private void report(MLP original, MLP pruned, MLPDataset holdout) {
+        int before = original.getParameterCount();
+        int after = pruned.getParameterCount();
+        System.out.println("Input rows: " + original.getInputSize() + " -> " + pruned.getInputSize()
+                + ", hidden units: " + original.getHiddenSize() + " -> " + pruned.getHiddenSize());
+        System.out.printf("Parameters: %d -> %d (%.1f%% reduction)%n",
+                before, after, 100.0 * (before - after) / before);
+
+        if (holdout == null || holdout.inputList.isEmpty()) {
+            System.out.println("No holdout sample, skipping accuracy and latency report");
+            return;
+        }
+        float[][] inputs = holdout.inputList.toArray(new float[0][]);
+        float[][] targets = holdout.targetList.toArray(new float[0][]);
+
+        float accBefore = accuracy(original, inputs, targets);
+        float accAfter = accuracy(pruned, inputs, targets);
+        System.out.printf("Holdout accuracy: %.2f%% -> %.2f%% (delta %+.2f%%)%n",
+                accBefore * 100, accAfter * 100, (accAfter - accBefore) * 100);
+
+        double latencyBefore = latencyMicros(original, inputs);
+        double latencyAfter = latencyMicros(pruned, inputs);
+        System.out.printf("Predict latency: %.1f us -> %.1f us (%.2fx)%n",
+                latencyBefore, latencyAfter, latencyBefore / latencyAfter);
+    }
+
+    private float accuracy(MLP mlp, float[][] inputs, float[][] targets) {
+        int correct = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            int predicted = mlp.predict(inputs[i]).predictedIndex;
+            if (targets[i][predicted] == 1.0f) {
+                correct++;
+            }
+        }
+        return correct / (float) inputs.length;
+    }
+
+    private double latencyMicros(MLP mlp, float[][] inputs) {
+        // Warm-up so the JIT compiles predict before timing
+        for (int r = 0; r < Math.max(1, latencyRepeats / 10); r++) {
+            for (float[] input : inputs) {
+                mlp.predict(input);
+            }
+        }
+        long start = System.nanoTime();
+        for (int r = 0; r < latencyRepeats; r++) {
+            for (float[] input : inputs) {
+                mlp.predict(input);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return elapsed / 1000.0 / ((long) latencyRepeats * inputs.length);
+    }
+}
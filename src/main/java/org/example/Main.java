@@ -1,9 +1,141 @@
 package org.example;
 
 import javax.swing.SwingUtilities;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class Main {
-    public static void main(String[] args) {
+    private static final String TRAIN_DISTRIBUTED_USAGE =
+            "Usage: --train-distributed [workers] [--port basePort] [--lr rate] [--deadline stepMillis]";
+    private static final String SCORE_USAGE =
+            "Usage: --score <imageDir> [--out results.csv|results.jsonl] [--threads n] [--batch n] [--ensemble]";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--train-worker")) {
+            DistributedTrainer.runWorker(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--train-distributed")) {
+            trainDistributed(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--score")) {
+            score(args);
+            return;
+        }
         SwingUtilities.invokeLater(UI::new);
     }
+
+    private static void trainDistributed(String[] args) {
+        int workers = Runtime.getRuntime().availableProcessors();
+        int basePort = MLPClassifier.DISTRIBUTED_BASE_PORT;
+        float lr = MLPClassifier.DISTRIBUTED_LR;
+        long deadline = MLPClassifier.DISTRIBUTED_STEP_DEADLINE_MILLIS;
+        int i = 1;
+        if (i < args.length && !args[i].startsWith("--")) {
+            workers = parsePositive("workers", args[i++], TRAIN_DISTRIBUTED_USAGE);
+        }
+        for (; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                System.err.println("Missing value for option " + option);
+                usage(TRAIN_DISTRIBUTED_USAGE);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--port" -> basePort = parsePositive(option, value, TRAIN_DISTRIBUTED_USAGE);
+                case "--deadline" -> deadline = parsePositive(option, value, TRAIN_DISTRIBUTED_USAGE);
+                case "--lr" -> lr = parsePositiveFloat(option, value, TRAIN_DISTRIBUTED_USAGE);
+                default -> {
+                    System.err.println("Unknown option " + option);
+                    usage(TRAIN_DISTRIBUTED_USAGE);
+                }
+            }
+        }
+
+        MLPClassifier mlpClassifier = new MLPClassifier();
+        if (mlpClassifier.trainAndSaveMLPDistributed(workers, basePort, lr, deadline) == null) {
+            System.exit(1);
+        }
+    }
+
+    private static void score(String[] args) throws Exception {
+        if (args.length < 2) {
+            usage(SCORE_USAGE);
+        }
+        Path dir = Paths.get(args[1]);
+        if (!Files.isDirectory(dir)) {
+            System.err.println("Not a directory: " + dir);
+            usage(SCORE_USAGE);
+        }
+        Path out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batch = 32;
+        boolean ensemble = false;
+        for (int i = 2; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--ensemble")) {
+                ensemble = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                System.err.println("Missing value for option " + option);
+                usage(SCORE_USAGE);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--out" -> out = Paths.get(value);
+                case "--threads" -> threads = parsePositive(option, value, SCORE_USAGE);
+                case "--batch" -> batch = parsePositive(option, value, SCORE_USAGE);
+                default -> {
+                    System.err.println("Unknown option " + option);
+                    usage(SCORE_USAGE);
+                }
+            }
+        }
+
+        // Status messages go to stderr so that stdout holds only the results
+        MLPClassifier mlpClassifier = new MLPClassifier(true, System.err);
+        if (ensemble && !mlpClassifier.setUseEnsemble(true)) {
+            System.err.println("No ensemble models found");
+            System.exit(1);
+        }
+        if (!mlpClassifier.hasModel()) {
+            System.err.println("No model loaded, train one first");
+            System.exit(1);
+        }
+        new BatchScorer(mlpClassifier, threads, batch).score(dir, out);
+    }
+
+    private static int parsePositive(String option, String value, String usage) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        System.err.println("Option " + option + " needs a positive integer, got " + value);
+        usage(usage);
+        return -1;
+    }
+
+    private static float parsePositiveFloat(String option, String value, String usage) {
+        try {
+            float x = Float.parseFloat(value);
+            if (x > 0) {
+                return x;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        System.err.println("Option " + option + " needs a positive number, got " + value);
+        usage(usage);
+        return -1;
+    }
+
+    private static void usage(String usage) {
+        System.err.println(usage);
+        System.exit(1);
+    }
 }
@@ -0,0 +1,157 @@
+package org.example;
+
+import java.io.*;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class RingAllReduce implements Closeable {
+
+    private final int rank;
+    private final int size;
+
+    private Socket nextSocket;
+    private Socket prevSocket;
+    private DataOutputStream toNext;
+    private DataInputStream fromPrev;
+
+    // Sending runs on its own thread so that every worker can write and read at the same time
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ring-sender");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // timeoutMillis bounds every wait on a peer, so a stalled worker fails the run instead of hanging it
+    public RingAllReduce(int rank, int size, int basePort, int timeoutMillis) throws IOException {
+        this.rank = rank;
+        this.size = size;
+        if (size == 1) {
+            return;
+        }
+
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        ServerSocket listener;
+        try {
+            listener = new ServerSocket(basePort + rank, 1, loopback);
+        } catch (BindException e) {
+            throw new IOException("Worker " + rank + " could not bind port " + (basePort + rank)
+                    + ", choose another base port", e);
+        }
+        try (ServerSocket server = listener) {
+            server.setSoTimeout(timeoutMillis);
+            nextSocket = connectWithRetry(loopback, basePort + (rank + 1) % size, timeoutMillis);
+            try {
+                prevSocket = server.accept();
+            } catch (SocketTimeoutException e) {
+                throw new IOException("Worker " + rank + " timed out waiting for worker "
+                        + previousRank() + " to connect", e);
+            }
+        }
+        prevSocket.setSoTimeout(timeoutMillis);
+        nextSocket.setTcpNoDelay(true);
+        toNext = new DataOutputStream(new BufferedOutputStream(nextSocket.getOutputStream(), 1 << 16));
+        fromPrev = new DataInputStream(new BufferedInputStream(prevSocket.getInputStream(), 1 << 16));
+    }
+
+    private int previousRank() {
+        return Math.floorMod(rank - 1, size);
+    }
+
+    private Socket connectWithRetry(InetAddress address, int port, int timeoutMillis) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            try {
+                return new Socket(address, port);
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while connecting to ring peer", ie);
+                }
+            }
+        }
+    }
+
+    // Sums data element-wise across all workers; every worker ends up with the same result
+    public void allReduce(float[] data) throws IOException {
+        if (size == 1) {
+            return;
+        }
+        int[] chunkStart = new int[size + 1];
+        for (int c = 0; c <= size; c++) {
+            chunkStart[c] = (int) ((long) data.length * c / size);
+        }
+
+        // Reduce-scatter: after size-1 steps worker r owns the full sum of chunk (r + 1) % size
+        for (int step = 0; step < size - 1; step++) {
+            int sendChunk = Math.floorMod(rank - step, size);
+            int recvChunk = Math.floorMod(rank - step - 1, size);
+            exchange(data, chunkStart[sendChunk], chunkStart[sendChunk + 1],
+                    chunkStart[recvChunk], chunkStart[recvChunk + 1], true);
+        }
+
+        // All-gather: circulate the reduced chunks around the ring
+        for (int step = 0; step < size - 1; step++) {
+            int sendChunk = Math.floorMod(rank + 1 - step, size);
+            int recvChunk = Math.floorMod(rank - step, size);
+            exchange(data, chunkStart[sendChunk], chunkStart[sendChunk + 1],
+                    chunkStart[recvChunk], chunkStart[recvChunk + 1], false);
+        }
+    }
+
+    private void exchange(float[] data, int sendFrom, int sendTo, int recvFrom, int recvTo, boolean accumulate)
+            throws IOException {
+        ByteBuffer outBuffer = ByteBuffer.allocate((sendTo - sendFrom) * Float.BYTES);
+        outBuffer.asFloatBuffer().put(data, sendFrom, sendTo - sendFrom);
+        Future<?> sent = sender.submit(() -> {
+            toNext.write(outBuffer.array());
+            toNext.flush();
+            return null;
+        });
+
+        byte[] inBytes = new byte[(recvTo - recvFrom) * Float.BYTES];
+        try {
+            fromPrev.readFully(inBytes);
+        } catch (SocketTimeoutException e) {
+            throw new IOException("Worker " + rank + " timed out waiting for data from worker "
+                    + previousRank() + "; it is stalled or has died", e);
+        }
+        float[] received = new float[recvTo - recvFrom];
+        ByteBuffer.wrap(inBytes).asFloatBuffer().get(received);
+        for (int i = 0; i < received.length; i++) {
+            if (accumulate) {
+                data[recvFrom + i] += received[i];
+            } else {
+                data[recvFrom + i] = received[i];
+            }
+        }
+
+        try {
+            sent.get();
+        } catch (Exception e) {
+            throw new IOException("Failed to send chunk to next worker", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sender.shutdownNow();
+        if (nextSocket != null) {
+            nextSocket.close();
+        }
+        if (prevSocket != null) {
+            prevSocket.close();
+        }
+    }
+}
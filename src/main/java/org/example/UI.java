@@ -12,8 +12,9 @@ public class UI extends JFrame {
     private final int GRID = 56;
     private BufferedImage canvas;
     private Graphics2D g2;
-    private JButton clearBtn, previewBtn, predictBtn, saveBtn, trainBtn, testBtn;
+    private JButton clearBtn, previewBtn, predictBtn, saveBtn, trainBtn, testBtn, pruneBtn, ensembleBtn;
     private JPanel rowPanel1, rowPanel2, buttonPanel;
+    private JCheckBox ensembleCheckBox;
     private JTextField labelField;
     private DrawingPanel drawingPanel;
     private int[][] binaryPixels = new int[GRID][GRID];
@@ -57,12 +58,15 @@ public class UI extends JFrame {
         rowPanel1.add(clearBtn);
         rowPanel1.add(previewBtn);
         rowPanel1.add(predictBtn);
+        rowPanel1.add(pruneBtn);
+        rowPanel1.add(ensembleCheckBox);
 
         rowPanel2.add(new JLabel("Tag:"));
         rowPanel2.add(labelField);
         rowPanel2.add(saveBtn);
         rowPanel2.add(trainBtn);
         rowPanel2.add(testBtn);
+        rowPanel2.add(ensembleBtn);
     }
 
     private void initButtonPanel() {
@@ -118,6 +122,26 @@ public class UI extends JFrame {
     private void trainBtnActionListener() {
         if (mlpClassifier.trainAndSaveMLP() != null)
             JOptionPane.showMessageDialog(this, "MLP successfully trained");
+        ensembleCheckBox.setSelected(mlpClassifier.isUsingEnsemble());
+    }
+
+    private void ensembleCheckBoxActionListener() {
+        if (!mlpClassifier.setUseEnsemble(ensembleCheckBox.isSelected())) {
+            JOptionPane.showMessageDialog(this, "No ensemble found, train one first");
+        }
+        ensembleCheckBox.setSelected(mlpClassifier.isUsingEnsemble());
+    }
+
+    private void pruneBtnActionListener() {
+        if (mlpClassifier.pruneAndSaveMLP() != null)
+            JOptionPane.showMessageDialog(this, "MLP successfully pruned");
+        ensembleCheckBox.setSelected(mlpClassifier.isUsingEnsemble());
+    }
+
+    private void ensembleBtnActionListener() {
+        if (mlpClassifier.trainAndSaveEnsemble(5) != null)
+            JOptionPane.showMessageDialog(this, "MLP ensemble successfully trained");
+        ensembleCheckBox.setSelected(mlpClassifier.isUsingEnsemble());
     }
 
     public void testBtnActionListener() {
@@ -144,6 +168,10 @@ public class UI extends JFrame {
             }
         }
         System.out.println("Number of correct answers: " + countOfGoodAnswers + "/" + inputs.length);
+
+        if (mlpClassifier.isUsingEnsemble()) {
+            mlpClassifier.getEnsemble().reportOverhead(inputs, 20);
+        }
     }
 
     private void initButtons() {
@@ -164,6 +192,15 @@ public class UI extends JFrame {
 
         testBtn = new JButton("Test");
         testBtn.addActionListener(e -> testBtnActionListener());
+
+        pruneBtn = new JButton("Prune MLP");
+        pruneBtn.addActionListener(e -> pruneBtnActionListener());
+
+        ensembleBtn = new JButton("Train Ensemble");
+        ensembleBtn.addActionListener(e -> ensembleBtnActionListener());
+
+        ensembleCheckBox = new JCheckBox("Ensemble");
+        ensembleCheckBox.addActionListener(e -> ensembleCheckBoxActionListener());
     }
 
     private void initDrawingPanel() {